@@ -0,0 +1,114 @@
+package main;
+
+/**
+ * A single line of the shopping cart: one product together with the number of units bought.
+ * Promotions are recorded per line: some units can be sold at a discounted price
+ * and some given away for free. Free units are taken from the discounted units first.
+ * Only the cart changes a line, so every change goes through the cart and its journal.
+ */
+public class CartLine {
+    private final Product product;
+    private int quantity;
+    private int freeUnits;
+    private int discountedUnits;
+    private double discountPrice;
+
+    public CartLine(Product product, int quantity) {
+        this.product = product;
+        this.quantity = quantity;
+        this.freeUnits = 0;
+        this.discountedUnits = 0;
+        this.discountPrice = product.getPrice();
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getFreeUnits() {
+        return freeUnits;
+    }
+
+    public int getPaidQuantity() {
+        return quantity - freeUnits;
+    }
+
+    public int getDiscountedUnits() {
+        return discountedUnits;
+    }
+
+    public double getDiscountPrice() {
+        return discountPrice;
+    }
+
+    // Discounted units that are still paid for, i.e. not given away for free
+    public int getDiscountedPaidQuantity() {
+        return Math.max(0, discountedUnits - freeUnits);
+    }
+
+    public int getFullPricePaidQuantity() {
+        return getPaidQuantity() - getDiscountedPaidQuantity();
+    }
+
+    void setFreeUnits(int freeUnits) {
+        this.freeUnits = Math.max(0, Math.min(freeUnits, quantity));
+    }
+
+    void applyDiscount(double discountPercent) {
+        applyDiscount(discountPercent, quantity);
+    }
+
+    // A line has a single discount price: units discounted again at the same price are added to the discounted ones,
+    // while a different discount is rejected, leaving the line unchanged, as long as the line has discounted units
+    void applyDiscount(double discountPercent, int units) {
+        double price = product.getPrice() * (1 - discountPercent / 100.0);
+        if (units <= 0 || (discountedUnits > 0 && Double.compare(price, discountPrice) != 0)) {
+            return;
+        }
+        // Free units are taken from the discounted units first, so the new ones go after any free units
+        this.discountedUnits = Math.min(Math.max(discountedUnits, freeUnits) + units, quantity);
+        this.discountPrice = price;
+    }
+
+    void restoreDiscount(int freeUnits, int discountedUnits, double discountPrice) {
+        this.freeUnits = freeUnits;
+        this.discountedUnits = discountedUnits;
+        this.discountPrice = discountPrice;
+    }
+
+    void changeQuantity(int delta) {
+        quantity += delta;
+        if (freeUnits > quantity) {
+            freeUnits = quantity;
+        }
+        if (discountedUnits > quantity) {
+            discountedUnits = quantity;
+        }
+    }
+
+    public double getTotalPrice() {
+        return discountPrice * getDiscountedPaidQuantity() + product.getDiscountPrice() * getFullPricePaidQuantity();
+    }
+
+    void resetDiscount() {
+        product.resetDiscount();
+        freeUnits = 0;
+        discountedUnits = 0;
+        discountPrice = product.getPrice();
+    }
+
+    @Override
+    public String toString() {
+        return "CartLine{" +
+                "product=" + product +
+                ", quantity=" + quantity +
+                ", freeUnits=" + freeUnits +
+                ", discountedUnits=" + discountedUnits +
+                ", discountPrice=" + discountPrice +
+                '}';
+    }
+}
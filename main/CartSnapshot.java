@@ -0,0 +1,119 @@
+package main;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Immutable copy of some or all lines of a cart: their positions in the cart,
+ * quantities and discount state. Lines are kept in ascending order of position.
+ */
+public class CartSnapshot {
+    private final int[] positions;
+    private final Product[] products;
+    private final int[] quantities;
+    private final int[] freeUnits;
+    private final int[] discountedUnits;
+    private final double[] lineDiscountPrices;
+    private final double[] productDiscountPrices;
+
+    public CartSnapshot(int[] positions, Product[] products, int[] quantities, int[] freeUnits,
+                        int[] discountedUnits, double[] lineDiscountPrices, double[] productDiscountPrices) {
+        this.positions = positions.clone();
+        this.products = products.clone();
+        this.quantities = quantities.clone();
+        this.freeUnits = freeUnits.clone();
+        this.discountedUnits = discountedUnits.clone();
+        this.lineDiscountPrices = lineDiscountPrices.clone();
+        this.productDiscountPrices = productDiscountPrices.clone();
+    }
+
+    public int getLineCount() {
+        return products.length;
+    }
+
+    public int getPosition(int line) {
+        return positions[line];
+    }
+
+    public Product getProduct(int line) {
+        return products[line];
+    }
+
+    public Product[] getProducts() {
+        return products.clone();
+    }
+
+    public int getQuantity(int line) {
+        return quantities[line];
+    }
+
+    public int getFreeUnits(int line) {
+        return freeUnits[line];
+    }
+
+    public int getDiscountedUnits(int line) {
+        return discountedUnits[line];
+    }
+
+    public double getLineDiscountPrice(int line) {
+        return lineDiscountPrices[line];
+    }
+
+    public double getProductDiscountPrice(int line) {
+        return productDiscountPrices[line];
+    }
+
+    /**
+     * Selects the lines of this snapshot that are missing from, or differ from, the other snapshot.
+     * @param other The snapshot to compare with.
+     * @return A snapshot of the changed lines only.
+     */
+    public CartSnapshot changedFrom(CartSnapshot other) {
+        Map<Product, Integer> otherLines = new IdentityHashMap<>();
+        for (int i = 0; i < other.getLineCount(); i++) {
+            otherLines.put(other.products[i], i);
+        }
+
+        boolean[] changed = new boolean[products.length];
+        int changedCount = 0;
+        for (int i = 0; i < products.length; i++) {
+            Integer j = otherLines.get(products[i]);
+            changed[i] = j == null || !sameLine(i, other, j);
+            if (changed[i]) {
+                changedCount++;
+            }
+        }
+
+        int[] changedPositions = new int[changedCount];
+        Product[] changedProducts = new Product[changedCount];
+        int[] changedQuantities = new int[changedCount];
+        int[] changedFreeUnits = new int[changedCount];
+        int[] changedDiscountedUnits = new int[changedCount];
+        double[] changedLineDiscountPrices = new double[changedCount];
+        double[] changedProductDiscountPrices = new double[changedCount];
+        int k = 0;
+        for (int i = 0; i < products.length; i++) {
+            if (changed[i]) {
+                changedPositions[k] = positions[i];
+                changedProducts[k] = products[i];
+                changedQuantities[k] = quantities[i];
+                changedFreeUnits[k] = freeUnits[i];
+                changedDiscountedUnits[k] = discountedUnits[i];
+                changedLineDiscountPrices[k] = lineDiscountPrices[i];
+                changedProductDiscountPrices[k] = productDiscountPrices[i];
+                k++;
+            }
+        }
+        return new CartSnapshot(changedPositions, changedProducts, changedQuantities, changedFreeUnits,
+                changedDiscountedUnits, changedLineDiscountPrices, changedProductDiscountPrices);
+    }
+
+    private boolean sameLine(int i, CartSnapshot other, int j) {
+        return positions[i] == other.positions[j]
+                && quantities[i] == other.quantities[j]
+                && freeUnits[i] == other.freeUnits[j]
+                && discountedUnits[i] == other.discountedUnits[j]
+                && Double.compare(lineDiscountPrices[i], other.lineDiscountPrices[j]) == 0
+                && Double.compare(productDiscountPrices[i], other.productDiscountPrices[j]) == 0;
+    }
+}
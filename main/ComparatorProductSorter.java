@@ -0,0 +1,19 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorts cart lines with {@link Arrays#sort(Object[], int, int, Comparator)}.
+ * Works for any comparator.
+ */
+public class ComparatorProductSorter implements ProductSorter {
+    @Override
+    public void sort(CartLine[] lines, int size, Comparator<? super Product> comparator) {
+        if (comparator == null) {
+            Arrays.sort(lines, 0, size, (l1, l2) -> l1.getProduct().compareTo(l2.getProduct()));
+        } else {
+            Arrays.sort(lines, 0, size, (l1, l2) -> comparator.compare(l1.getProduct(), l2.getProduct()));
+        }
+    }
+}
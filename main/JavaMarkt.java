@@ -1,9 +1,14 @@
 package main;
 
+import main.journal.AddToCartCommand;
+import main.journal.ApplyOptimalPromotionsCommand;
+import main.journal.ApplyPromotionsCommand;
+import main.journal.CartJournal;
+import main.journal.RemoveFromCartCommand;
+import main.journal.SortCartCommand;
 import main.promotion.Promotion;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -13,6 +18,7 @@ import java.util.List;
  */
 public class JavaMarkt {
     private Koszyk cart;
+    private CartJournal journal;
     private List<Promotion> availablePromotions;
 
     /**
@@ -20,7 +26,16 @@ public class JavaMarkt {
      * @param initialCartCapacity The initial capacity of the shopping cart.
      */
     public JavaMarkt(int initialCartCapacity) {
-        cart = new Koszyk(initialCartCapacity);
+        this(new CartJournal(new Koszyk(initialCartCapacity)));
+    }
+
+    /**
+     * Creates a new JavaMarkt instance working on the cart of the given journal, with no promotions.
+     * @param journal The journal recording the changes made to the cart.
+     */
+    public JavaMarkt(CartJournal journal) {
+        this.journal = journal;
+        cart = journal.getCart();
         availablePromotions = new ArrayList<>();
     }
 
@@ -32,12 +47,29 @@ public class JavaMarkt {
         return cart;
     }
 
+    /**
+     * Gets the journal recording the changes made to the cart.
+     * @return The cart journal.
+     */
+    public CartJournal getJournal() {
+        return journal;
+    }
+
     /**
      * Adds a product to the cart.
      * @param product The product to add.
      */
     public void addToCart(Product product) {
-        cart.addToCart(product);
+        addToCart(product, 1);
+    }
+
+    /**
+     * Adds several units of a product to the cart.
+     * @param product The product to add.
+     * @param quantity The number of units to add.
+     */
+    public void addToCart(Product product, int quantity) {
+        journal.execute(new AddToCartCommand(product, quantity));
     }
 
     /**
@@ -45,7 +77,16 @@ public class JavaMarkt {
      * @param product The product to remove.
      */
     public void removeFromCart(Product product) {
-        cart.removeFromCart(product);
+        removeFromCart(product, 1);
+    }
+
+    /**
+     * Removes several units of a product from the cart.
+     * @param product The product to remove.
+     * @param quantity The number of units to remove.
+     */
+    public void removeFromCart(Product product, int quantity) {
+        journal.execute(new RemoveFromCartCommand(product, quantity));
     }
 
     /**
@@ -77,19 +118,10 @@ public class JavaMarkt {
      * @return The total amount saved by applying promotions.
      */
     public double applyPromotions() {
-        double totalSaved = 0;
-
-        // Reset all discounts before applying promotions
-        cart.resetAllDiscounts();
-
-        // Apply each applicable promotion
-        for (Promotion promotion : availablePromotions) {
-            if (promotion.isApplicable(cart)) {
-                totalSaved += promotion.apply(cart);
-            }
-        }
-
-        return totalSaved;
+        // Resets all discounts and applies each applicable promotion
+        ApplyPromotionsCommand command = new ApplyPromotionsCommand(availablePromotions);
+        journal.execute(command);
+        return command.getSaved();
     }
 
     /**
@@ -97,91 +129,33 @@ public class JavaMarkt {
      * @return The total amount saved by applying promotions in the optimal order.
      */
     public double applyOptimalPromotions() {
-        // Reset all discounts before applying promotions
-        cart.resetAllDiscounts();
-
-        // Get all applicable promotions
-        List<Promotion> applicablePromotions = new ArrayList<>();
-        for (Promotion promotion : availablePromotions) {
-            if (promotion.isApplicable(cart)) {
-                applicablePromotions.add(promotion);
-            }
-        }
-
-        // If there are no applicable promotions, return 0
-        if (applicablePromotions.isEmpty()) {
-            return 0;
-        }
-
-        // Try all possible permutations of promotions to find the optimal order
-        List<List<Promotion>> allPermutations = generatePermutations(applicablePromotions);
-
-        double maxSavings = 0;
-        List<Promotion> bestOrder = null;
-
-        for (List<Promotion> permutation : allPermutations) {
-            // Reset all discounts
-            cart.resetAllDiscounts();
-
-            // Apply promotions in this order
-            double totalSaved = 0;
-            for (Promotion promotion : permutation) {
-                if (promotion.isApplicable(cart)) {
-                    totalSaved += promotion.apply(cart);
-                }
-            }
-
-            // Update the maximum savings if this order is better
-            if (totalSaved > maxSavings) {
-                maxSavings = totalSaved;
-                bestOrder = permutation;
-            }
-        }
-
-        // Apply the best order of promotions
-        cart.resetAllDiscounts();
-        double totalSaved = 0;
-        for (Promotion promotion : bestOrder) {
-            if (promotion.isApplicable(cart)) {
-                totalSaved += promotion.apply(cart);
-            }
-        }
-
-        return totalSaved;
+        // Every order is tried inside the command, so only the best one is journaled
+        ApplyOptimalPromotionsCommand command = new ApplyOptimalPromotionsCommand(availablePromotions);
+        journal.execute(command);
+        return command.getSaved();
     }
 
-    private List<List<Promotion>> generatePermutations(List<Promotion> promotions) {
-        List<List<Promotion>> result = new ArrayList<>();
-        generatePermutationsHelper(promotions, new ArrayList<>(), result, new boolean[promotions.size()]);
-        return result;
+    /**
+     * Reverts the most recent change to the cart: adding or removing products, sorting or applying promotions.
+     * @return True if a change was undone, false if there was nothing to undo.
+     */
+    public boolean undo() {
+        return journal.undo();
     }
 
-    private void generatePermutationsHelper(List<Promotion> promotions, List<Promotion> current, List<List<Promotion>> result, boolean[] used) {
-        if (current.size() == promotions.size()) {
-            result.add(new ArrayList<>(current));
-            return;
-        }
-
-        for (int i = 0; i < promotions.size(); i++) {
-            if (used[i]) {
-                continue;
-            }
-
-            used[i] = true;
-            current.add(promotions.get(i));
-
-            generatePermutationsHelper(promotions, current, result, used);
-
-            used[i] = false;
-            current.remove(current.size() - 1);
-        }
+    /**
+     * Repeats the most recently undone change to the cart.
+     * @return True if a change was redone, false if there was nothing to redo.
+     */
+    public boolean redo() {
+        return journal.redo();
     }
 
     /**
      * Sorts the products in the cart by price (descending) and then by name.
      */
     public void sortCart() {
-        cart.sortProducts();
+        journal.execute(new SortCartCommand(null));
     }
 
     /**
@@ -189,7 +163,7 @@ public class JavaMarkt {
      * @param comparator The comparator to use for sorting.
      */
     public void sortCart(Comparator<Product> comparator) {
-        cart.sortProducts(comparator);
+        journal.execute(new SortCartCommand(comparator));
     }
 
     /**
@@ -1,33 +1,91 @@
 package main;
 
+import main.journal.AddToCartCommand;
+import main.journal.ApplyDiscountToUnitsCommand;
+import main.journal.CartJournal;
+import main.journal.ChangeLinesCommand;
+import main.journal.FreeCheapestUnitsCommand;
+import main.journal.RemoveFromCartCommand;
+import main.journal.ResetDiscountsCommand;
+import main.journal.SortCartCommand;
+
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 public class Koszyk {
-    private Product[] products;
+    private CartLine[] lines;
+    private int lineCount;
     private int size;
+    // Lines are keyed by product identity, the same way removeFromCart matches products
+    private final Map<Product, CartLine> lineIndex;
+    private ProductSorter sorter;
+    // While set, changes made directly on the cart are sent to the journal as commands, so they can be undone and recovered
+    private CartJournal journal;
 
     public Koszyk(int initialCapacity) {
-        products = new Product[initialCapacity];
+        lines = new CartLine[initialCapacity];
+        lineCount = 0;
         size = 0;
+        lineIndex = new IdentityHashMap<>();
+        sorter = new RadixProductSorter();
     }
 
     public void addToCart(Product product) {
-        if (size >= products.length) {
-            Product[] newProducts = new Product[products.length + 1];
-            System.arraycopy(products, 0, newProducts, 0, products.length);
-            products = newProducts;
+        addToCart(product, 1);
+    }
+
+    public void addToCart(Product product, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        if (isJournaled()) {
+            journal.execute(new AddToCartCommand(product, quantity));
+            return;
+        }
+
+        CartLine line = lineIndex.get(product);
+        if (line != null) {
+            line.changeQuantity(quantity);
+        } else {
+            if (lineCount >= lines.length) {
+                lines = Arrays.copyOf(lines, Math.max(1, lines.length * 2));
+            }
+            line = new CartLine(product, quantity);
+            lines[lineCount++] = line;
+            lineIndex.put(product, line);
         }
-        products[size++] = product;
+        size += quantity;
     }
 
     public void removeFromCart(Product product) {
-        for (int i = 0; i < size; i++) {
-            if (products[i] == product) {
-                System.arraycopy(products, i+1, products, i, size - i - 1);
-                products[size-1] = null;
-                size--;
-                break;
+        removeFromCart(product, 1);
+    }
+
+    public void removeFromCart(Product product, int quantity) {
+        CartLine line = lineIndex.get(product);
+        if (line == null || quantity <= 0) {
+            return;
+        }
+        if (isJournaled()) {
+            journal.execute(new RemoveFromCartCommand(product, quantity));
+            return;
+        }
+
+        int removed = Math.min(quantity, line.getQuantity());
+        line.changeQuantity(-removed);
+        size -= removed;
+
+        if (line.getQuantity() == 0) {
+            lineIndex.remove(product);
+            for (int i = 0; i < lineCount; i++) {
+                if (lines[i] == line) {
+                    System.arraycopy(lines, i+1, lines, i, lineCount - i - 1);
+                    lines[lineCount-1] = null;
+                    lineCount--;
+                    break;
+                }
             }
         }
     }
@@ -36,52 +94,70 @@ public class Koszyk {
         return size;
     }
 
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public CartLine[] getLines() {
+        return Arrays.copyOf(lines, lineCount);
+    }
+
     public Product[] getProducts() {
-        // Create a new array with the same products (not copies)
-        Product[] result = new Product[size];
-        for (int i = 0; i < size; i++) {
-            result[i] = products[i];
-        }
-        return result;
+        // Expand the lines into one entry per unit (the same product objects, not copies).
+        // All units of a product are next to each other, in the order the product was first added,
+        // so adding mouse, laptop, mouse gives [mouse, mouse, laptop]
+        return expandUnits(lines, size);
+    }
+
+    public void setSorter(ProductSorter sorter) {
+        this.sorter = sorter;
+    }
+
+    public void setJournal(CartJournal journal) {
+        this.journal = journal;
     }
 
     public void sortProducts() {
         // Sort using the natural ordering (Comparable)
-        Product[] sortedProducts = getProducts();
-        Arrays.sort(sortedProducts);
-        System.arraycopy(sortedProducts, 0, products, 0, size);
+        sortLines(null);
     }
 
     public void sortProducts(Comparator<Product> comparator) {
         // Sort using the provided comparator
-        Product[] sortedProducts = getProducts();
-        Arrays.sort(sortedProducts, comparator);
-        System.arraycopy(sortedProducts, 0, products, 0, size);
+        sortLines(comparator);
+    }
+
+    private void sortLines(Comparator<Product> comparator) {
+        if (isJournaled()) {
+            journal.execute(new SortCartCommand(comparator));
+            return;
+        }
+        sorter.sort(lines, lineCount, comparator);
     }
 
     public Product findCheapestProduct() {
-        if (size == 0) {
+        if (lineCount == 0) {
             return null;
         }
 
-        Product cheapest = products[0];
-        for (int i = 1; i < size; i++) {
-            if (products[i].getPrice() < cheapest.getPrice()) {
-                cheapest = products[i];
+        Product cheapest = lines[0].getProduct();
+        for (int i = 1; i < lineCount; i++) {
+            if (lines[i].getProduct().getPrice() < cheapest.getPrice()) {
+                cheapest = lines[i].getProduct();
             }
         }
         return cheapest;
     }
 
     public Product findMostExpensiveProduct() {
-        if (size == 0) {
+        if (lineCount == 0) {
             return null;
         }
 
-        Product mostExpensive = products[0];
-        for (int i = 1; i < size; i++) {
-            if (products[i].getPrice() > mostExpensive.getPrice()) {
-                mostExpensive = products[i];
+        Product mostExpensive = lines[0].getProduct();
+        for (int i = 1; i < lineCount; i++) {
+            if (lines[i].getProduct().getPrice() > mostExpensive.getPrice()) {
+                mostExpensive = lines[i].getProduct();
             }
         }
         return mostExpensive;
@@ -92,21 +168,12 @@ public class Koszyk {
             return new Product[0];
         }
 
-        // Create a copy of products array
-        Product[] sortedProducts = new Product[size];
-        for (int i = 0; i < size; i++) {
-            sortedProducts[i] = products[i];
-        }
-
-        // Sort by price (ascending)
-        Arrays.sort(sortedProducts, Comparator.comparingDouble(Product::getPrice));
-
-        // Return n cheapest products (or all if n > size)
-        int resultSize = Math.min(n, size);
-        Product[] result = new Product[resultSize];
-        System.arraycopy(sortedProducts, 0, result, 0, resultSize);
+        // Sort a copy of the lines by price (ascending)
+        CartLine[] sortedLines = getLines();
+        Arrays.sort(sortedLines, Comparator.comparingDouble(line -> line.getProduct().getPrice()));
 
-        return result;
+        // Return n cheapest units (or all if n > size)
+        return expandUnits(sortedLines, Math.min(n, size));
     }
 
     public Product[] findNMostExpensiveProducts(int n) {
@@ -114,34 +181,247 @@ public class Koszyk {
             return new Product[0];
         }
 
-        // Create a copy of products array
-        Product[] sortedProducts = new Product[size];
-        for (int i = 0; i < size; i++) {
-            sortedProducts[i] = products[i];
-        }
-
-        // Sort by price (descending)
-        Arrays.sort(sortedProducts, Comparator.comparingDouble(Product::getPrice).reversed());
-
-        // Return n most expensive products (or all if n > size)
-        int resultSize = Math.min(n, size);
-        Product[] result = new Product[resultSize];
-        System.arraycopy(sortedProducts, 0, result, 0, resultSize);
+        // Sort a copy of the lines by price (descending)
+        CartLine[] sortedLines = getLines();
+        Arrays.sort(sortedLines, Comparator.comparingDouble((CartLine line) -> line.getProduct().getPrice()).reversed());
 
-        return result;
+        // Return n most expensive units (or all if n > size)
+        return expandUnits(sortedLines, Math.min(n, size));
     }
 
     public double calculateTotalPrice() {
         double total = 0;
-        for (int i = 0; i < size; i++) {
-            total += products[i].getDiscountPrice();
+        for (int i = 0; i < lineCount; i++) {
+            total += lines[i].getTotalPrice();
         }
         return total;
     }
 
+    // Gives away the count cheapest paid units for free and returns the amount saved.
+    // A line gives away its discounted units before its full-price ones, so when a product-wide discount makes
+    // the full-price units cheaper than the line's discounted ones, the dearer discounted units are freed instead
+    public double freeCheapestUnits(int count) {
+        if (isJournaled()) {
+            return journaled(new FreeCheapestUnitsCommand(count));
+        }
+
+        // Every line has up to two price groups: its discounted units and its full-price units
+        int groupCount = 0;
+        CartLine[] groupLines = new CartLine[2 * lineCount];
+        double[] groupPrices = new double[2 * lineCount];
+        int[] groupUnits = new int[2 * lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            CartLine line = lines[i];
+            if (line.getDiscountedPaidQuantity() > 0) {
+                groupLines[groupCount] = line;
+                groupPrices[groupCount] = line.getDiscountPrice();
+                groupUnits[groupCount++] = line.getDiscountedPaidQuantity();
+            }
+            if (line.getFullPricePaidQuantity() > 0) {
+                groupLines[groupCount] = line;
+                groupPrices[groupCount] = line.getProduct().getDiscountPrice();
+                groupUnits[groupCount++] = line.getFullPricePaidQuantity();
+            }
+        }
+
+        // Order the groups by price without boxing: rank each price among the sorted prices,
+        // then sort the ranks packed together with the group index
+        double[] sortedPrices = Arrays.copyOf(groupPrices, groupCount);
+        Arrays.sort(sortedPrices);
+        long[] order = new long[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            order[i] = (long) Arrays.binarySearch(sortedPrices, groupPrices[i]) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        double saved = 0;
+        for (int i = 0; i < groupCount && count > 0; i++) {
+            CartLine line = groupLines[(int) order[i]];
+            int freed = Math.min(count, groupUnits[(int) order[i]]);
+            double totalBefore = line.getTotalPrice();
+            line.setFreeUnits(line.getFreeUnits() + freed);
+            saved += totalBefore - line.getTotalPrice();
+            count -= freed;
+        }
+        return saved;
+    }
+
+    // Sells the given number of units of the first line with the product code at a discount and returns the amount saved.
+    // Units already discounted at the same price are kept, a different discount on a discounted line saves nothing
+    public double applyDiscountToUnits(String productCode, double discountPercent, int units) {
+        if (isJournaled()) {
+            return journaled(new ApplyDiscountToUnitsCommand(productCode, discountPercent, units));
+        }
+        for (int i = 0; i < lineCount; i++) {
+            CartLine line = lines[i];
+            if (line.getProduct().getCode().equals(productCode)) {
+                double totalBefore = line.getTotalPrice();
+                line.applyDiscount(discountPercent, units);
+                return totalBefore - line.getTotalPrice();
+            }
+        }
+        return 0;
+    }
+
+    public CartSnapshot createSnapshot() {
+        return snapshotOf(lines, lineCount, 0);
+    }
+
+    // Snapshot of the line holding the product; empty if the product is not in the cart
+    public CartSnapshot createLineSnapshot(Product product) {
+        CartLine line = lineIndex.get(product);
+        if (line == null) {
+            return snapshotOf(lines, 0, 0);
+        }
+        int position = 0;
+        while (lines[position] != line) {
+            position++;
+        }
+        return snapshotOf(lines, 1, position);
+    }
+
+    // The restore methods are what the journal's commands and recovery are built from, so they are never journaled
+    public void restoreSnapshot(CartSnapshot snapshot) {
+        Arrays.fill(lines, 0, lineCount, null);
+        lineCount = 0;
+        size = 0;
+        lineIndex.clear();
+        insertLines(snapshot);
+    }
+
+    // Replaces the lines of the previous products and of the snapshot's products with the snapshot's lines
+    public void restoreLines(CartSnapshot target, Product[] previousProducts) {
+        Map<CartLine, Boolean> replaced = new IdentityHashMap<>();
+        for (Product product : previousProducts) {
+            CartLine line = lineIndex.remove(product);
+            if (line != null) {
+                replaced.put(line, Boolean.TRUE);
+            }
+        }
+        for (int i = 0; i < target.getLineCount(); i++) {
+            CartLine line = lineIndex.remove(target.getProduct(i));
+            if (line != null) {
+                replaced.put(line, Boolean.TRUE);
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < lineCount; i++) {
+            if (replaced.containsKey(lines[i])) {
+                size -= lines[i].getQuantity();
+            } else {
+                lines[kept++] = lines[i];
+            }
+        }
+        Arrays.fill(lines, kept, lineCount, null);
+        lineCount = kept;
+
+        insertLines(target);
+    }
+
+    public Product[] getLineOrder() {
+        Product[] order = new Product[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            order[i] = lines[i].getProduct();
+        }
+        return order;
+    }
+
+    // Puts the lines of the given products first, in that order; other lines follow in their current order
+    public void reorderLines(Product[] order) {
+        CartLine[] reordered = new CartLine[lines.length];
+        Map<CartLine, Boolean> placed = new IdentityHashMap<>();
+        int count = 0;
+        for (Product product : order) {
+            CartLine line = lineIndex.get(product);
+            if (line != null && placed.put(line, Boolean.TRUE) == null) {
+                reordered[count++] = line;
+            }
+        }
+        for (int i = 0; i < lineCount; i++) {
+            if (!placed.containsKey(lines[i])) {
+                reordered[count++] = lines[i];
+            }
+        }
+        lines = reordered;
+    }
+
     public void resetAllDiscounts() {
-        for (int i = 0; i < size; i++) {
-            products[i].resetDiscount();
+        if (isJournaled()) {
+            journal.execute(new ResetDiscountsCommand());
+            return;
+        }
+        for (int i = 0; i < lineCount; i++) {
+            lines[i].resetDiscount();
         }
     }
+
+    // Changes made by the journal's own commands are not sent back to it
+    private boolean isJournaled() {
+        return journal != null && !journal.isExecuting();
+    }
+
+    private double journaled(ChangeLinesCommand command) {
+        journal.execute(command);
+        return command.getSaved();
+    }
+
+    // Inserts the snapshot's lines at their recorded positions, which must be ascending
+    private void insertLines(CartSnapshot snapshot) {
+        int total = lineCount + snapshot.getLineCount();
+        CartLine[] merged = new CartLine[Math.max(lines.length, total)];
+        int existing = 0;
+        int inserted = 0;
+        for (int position = 0; position < total; position++) {
+            if (inserted < snapshot.getLineCount()
+                    && (snapshot.getPosition(inserted) <= position || existing == lineCount)) {
+                Product product = snapshot.getProduct(inserted);
+                CartLine line = new CartLine(product, snapshot.getQuantity(inserted));
+                line.restoreDiscount(snapshot.getFreeUnits(inserted), snapshot.getDiscountedUnits(inserted),
+                        snapshot.getLineDiscountPrice(inserted));
+                product.restoreDiscountPrice(snapshot.getProductDiscountPrice(inserted));
+                lineIndex.put(product, line);
+                size += line.getQuantity();
+                merged[position] = line;
+                inserted++;
+            } else {
+                merged[position] = lines[existing++];
+            }
+        }
+        lines = merged;
+        lineCount = total;
+    }
+
+    private static CartSnapshot snapshotOf(CartLine[] source, int count, int from) {
+        int[] positions = new int[count];
+        Product[] lineProducts = new Product[count];
+        int[] quantities = new int[count];
+        int[] freeUnits = new int[count];
+        int[] discountedUnits = new int[count];
+        double[] lineDiscountPrices = new double[count];
+        double[] productDiscountPrices = new double[count];
+        for (int i = 0; i < count; i++) {
+            CartLine line = source[from + i];
+            positions[i] = from + i;
+            lineProducts[i] = line.getProduct();
+            quantities[i] = line.getQuantity();
+            freeUnits[i] = line.getFreeUnits();
+            discountedUnits[i] = line.getDiscountedUnits();
+            lineDiscountPrices[i] = line.getDiscountPrice();
+            productDiscountPrices[i] = line.getProduct().getDiscountPrice();
+        }
+        return new CartSnapshot(positions, lineProducts, quantities, freeUnits,
+                discountedUnits, lineDiscountPrices, productDiscountPrices);
+    }
+
+    private static Product[] expandUnits(CartLine[] source, int units) {
+        Product[] result = new Product[units];
+        int position = 0;
+        for (int i = 0; position < units; i++) {
+            int count = Math.min(source[i].getQuantity(), units - position);
+            Arrays.fill(result, position, position + count, source[i].getProduct());
+            position += count;
+        }
+        return result;
+    }
 }
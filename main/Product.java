@@ -39,6 +39,10 @@ public class Product implements Comparable<Product> {
         this.discountPrice = price;
     }
 
+    public void restoreDiscountPrice(double discountPrice) {
+        this.discountPrice = discountPrice;
+    }
+
     @Override
     public int compareTo(Product other) {
         // Default sorting: descending by price, then alphabetically by name
@@ -0,0 +1,276 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Search index over a collection of products.
+ * Keeps the products in two sorted arrays: one in the default cart ordering
+ * (descending by price, then alphabetically by name) with a parallel array of
+ * primitive prices, and one ordered by name. Lookups use binary search,
+ * updates insert into or remove from both arrays in place.
+ */
+public class ProductCatalog {
+    private Product[] byPrice;
+    private double[] prices;
+    private Product[] byName;
+    private int size;
+
+    /**
+     * Creates an empty catalog.
+     * @param initialCapacity The initial capacity of the catalog.
+     */
+    public ProductCatalog(int initialCapacity) {
+        byPrice = new Product[initialCapacity];
+        prices = new double[initialCapacity];
+        byName = new Product[initialCapacity];
+        size = 0;
+    }
+
+    /**
+     * Creates a catalog indexing the given products.
+     * @param products The products to index.
+     */
+    public ProductCatalog(Product[] products) {
+        size = products.length;
+        byPrice = Arrays.copyOf(products, size);
+        Arrays.sort(byPrice);
+        prices = new double[size];
+        for (int i = 0; i < size; i++) {
+            prices[i] = byPrice[i].getPrice();
+        }
+        byName = Arrays.copyOf(products, size);
+        Arrays.sort(byName, new Product.NameComparator());
+    }
+
+    /**
+     * Gets the number of products in the catalog.
+     * @return The number of products.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Adds a product to the catalog.
+     * @param product The product to add.
+     */
+    public void add(Product product) {
+        if (size >= byPrice.length) {
+            int newCapacity = Math.max(1, byPrice.length * 2);
+            byPrice = Arrays.copyOf(byPrice, newCapacity);
+            prices = Arrays.copyOf(prices, newCapacity);
+            byName = Arrays.copyOf(byName, newCapacity);
+        }
+
+        int pricePosition = priceInsertionPoint(product.getPrice(), product.getName());
+        System.arraycopy(byPrice, pricePosition, byPrice, pricePosition + 1, size - pricePosition);
+        System.arraycopy(prices, pricePosition, prices, pricePosition + 1, size - pricePosition);
+        byPrice[pricePosition] = product;
+        prices[pricePosition] = product.getPrice();
+
+        int namePosition = nameUpperBound(product.getName());
+        System.arraycopy(byName, namePosition, byName, namePosition + 1, size - namePosition);
+        byName[namePosition] = product;
+
+        size++;
+    }
+
+    /**
+     * Removes a product from the catalog.
+     * @param product The product to remove.
+     * @return True if the product was in the catalog, false otherwise.
+     */
+    public boolean remove(Product product) {
+        int pricePosition = -1;
+        for (int i = priceLowerBound(product.getPrice()); i < size && Double.compare(prices[i], product.getPrice()) == 0; i++) {
+            if (byPrice[i] == product) {
+                pricePosition = i;
+                break;
+            }
+        }
+        if (pricePosition < 0) {
+            return false;
+        }
+
+        int namePosition = nameLowerBound(product.getName());
+        while (byName[namePosition] != product) {
+            namePosition++;
+        }
+
+        System.arraycopy(byPrice, pricePosition + 1, byPrice, pricePosition, size - pricePosition - 1);
+        System.arraycopy(prices, pricePosition + 1, prices, pricePosition, size - pricePosition - 1);
+        System.arraycopy(byName, namePosition + 1, byName, namePosition, size - namePosition - 1);
+        size--;
+        byPrice[size] = null;
+        byName[size] = null;
+        return true;
+    }
+
+    /**
+     * Finds the cheapest product in the catalog.
+     * @return The cheapest product, or null if the catalog is empty.
+     *         Among products with the same lowest price, the alphabetically first one is returned.
+     */
+    public Product findCheapest() {
+        return size == 0 ? null : byPrice[priceLowerBound(prices[size - 1])];
+    }
+
+    /**
+     * Finds the most expensive product in the catalog.
+     * @return The most expensive product, or null if the catalog is empty.
+     */
+    public Product findMostExpensive() {
+        return size == 0 ? null : byPrice[0];
+    }
+
+    /**
+     * Finds the n cheapest products in the catalog.
+     * @param n The number of products to find.
+     * @return An array of the n cheapest products, cheapest first.
+     */
+    public Product[] findNCheapest(int n) {
+        int resultSize = Math.max(0, Math.min(n, size));
+        Product[] result = new Product[resultSize];
+        int position = 0;
+        int runEnd = size;
+        while (position < resultSize) {
+            // Copy each run of equal prices from its start, so ties stay in alphabetical order
+            int runStart = priceLowerBound(prices[runEnd - 1]);
+            int count = Math.min(runEnd - runStart, resultSize - position);
+            System.arraycopy(byPrice, runStart, result, position, count);
+            position += count;
+            runEnd = runStart;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the n most expensive products in the catalog.
+     * @param n The number of products to find.
+     * @return An array of the n most expensive products, most expensive first.
+     */
+    public Product[] findNMostExpensive(int n) {
+        int resultSize = Math.max(0, Math.min(n, size));
+        return Arrays.copyOf(byPrice, resultSize);
+    }
+
+    /**
+     * Finds all products with a price between the given bounds (inclusive).
+     * @param minPrice The lower bound of the price range.
+     * @param maxPrice The upper bound of the price range.
+     * @return The matching products, descending by price and then by name.
+     */
+    public Product[] findInPriceRange(double minPrice, double maxPrice) {
+        int from = priceLowerBound(maxPrice);
+        int to = priceUpperBound(minPrice);
+        if (from >= to) {
+            return new Product[0];
+        }
+        return Arrays.copyOfRange(byPrice, from, to);
+    }
+
+    /**
+     * Finds all products with the given name.
+     * @param name The name to look up.
+     * @return The products with that name.
+     */
+    public Product[] findByName(String name) {
+        return Arrays.copyOfRange(byName, nameLowerBound(name), nameUpperBound(name));
+    }
+
+    /**
+     * Gets one page of products in the default ordering
+     * (descending by price, then alphabetically by name).
+     * @param pageIndex The zero-based index of the page.
+     * @param pageSize The number of products per page.
+     * @return The products on the page; empty if the page is past the end.
+     */
+    public Product[] getPage(int pageIndex, int pageSize) {
+        if (pageIndex < 0 || pageSize <= 0) {
+            return new Product[0];
+        }
+        long from = (long) pageIndex * pageSize;
+        if (from >= size) {
+            return new Product[0];
+        }
+        int to = (int) Math.min(size, from + pageSize);
+        return Arrays.copyOfRange(byPrice, (int) from, to);
+    }
+
+    // First index whose price is not greater than the given price
+    private int priceLowerBound(double price) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(prices[mid], price) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index whose price is lower than the given price
+    private int priceUpperBound(double price) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(prices[mid], price) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Position after all products ordered before or equal to (price, name)
+    private int priceInsertionPoint(double price, String name) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = Double.compare(price, prices[mid]);
+            if (comparison == 0) {
+                comparison = byPrice[mid].getName().compareTo(name);
+            }
+            if (comparison <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int nameLowerBound(String name) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byName[mid].getName().compareTo(name) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int nameUpperBound(String name) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byName[mid].getName().compareTo(name) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
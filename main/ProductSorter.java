@@ -0,0 +1,17 @@
+package main;
+
+import java.util.Comparator;
+
+/**
+ * Strategy for ordering the lines of a cart by their products, used by the cart when sorting.
+ */
+public interface ProductSorter {
+    /**
+     * Sorts the first size lines in place.
+     * The sort must be stable: lines whose products compare equal keep their relative order.
+     * @param lines The lines to sort.
+     * @param size The number of lines to sort.
+     * @param comparator The comparator to use, or null for the natural ordering of products.
+     */
+    void sort(CartLine[] lines, int size, Comparator<? super Product> comparator);
+}
@@ -0,0 +1,141 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorts cart lines descending by price, for the natural ordering, {@link Product.PriceThenNameComparator}
+ * and {@link Product.PriceComparator}, without calling a comparator for the prices.
+ * Every price is turned into a {@code long} key whose unsigned order matches {@link Double#compare},
+ * the keys are sorted with an LSD radix sort, and only runs of equal prices are then sorted by name.
+ * Any other comparator, and carts too small to benefit, are handed over to the fallback sorter.
+ * The sorter keeps two {@code long} keys and one line reference of scratch space per line of the largest
+ * cart it has sorted and reuses them, so it must not be shared between carts sorted concurrently.
+ */
+public class RadixProductSorter implements ProductSorter {
+    private static final int RADIX_BITS = 8;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    private static final int PASSES = Long.SIZE / RADIX_BITS;
+    // Below this many lines the histograms cost more than comparing directly
+    private static final int MIN_RADIX_SIZE = 256;
+
+    private static final Comparator<CartLine> BY_NAME = (l1, l2) -> l1.getProduct().getName().compareTo(l2.getProduct().getName());
+
+    private final ProductSorter fallback;
+    // Scratch space kept between sorts and grown as needed, so repeated sorts of a cart allocate nothing
+    private long[] keys = new long[0];
+    private long[] keyBuffer = new long[0];
+    private CartLine[] lineBuffer = new CartLine[0];
+    private final int[][] counts = new int[PASSES][BUCKETS];
+
+    /**
+     * Creates a sorter that falls back to {@link ComparatorProductSorter}.
+     */
+    public RadixProductSorter() {
+        this(new ComparatorProductSorter());
+    }
+
+    /**
+     * Creates a sorter with the given fallback.
+     * @param fallback The sorter used for comparators not ordered by price.
+     */
+    public RadixProductSorter(ProductSorter fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void sort(CartLine[] lines, int size, Comparator<? super Product> comparator) {
+        boolean thenByName;
+        if (comparator == null || comparator == Comparator.naturalOrder()
+                || comparator.getClass() == Product.PriceThenNameComparator.class) {
+            thenByName = true;
+        } else if (comparator.getClass() == Product.PriceComparator.class) {
+            thenByName = false;
+        } else {
+            fallback.sort(lines, size, comparator);
+            return;
+        }
+        if (size < MIN_RADIX_SIZE) {
+            fallback.sort(lines, size, comparator);
+            return;
+        }
+
+        if (keys.length < size) {
+            int capacity = Math.max(size, 2 * keys.length);
+            keys = new long[capacity];
+            keyBuffer = new long[capacity];
+            lineBuffer = new CartLine[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            long bits = Double.doubleToLongBits(lines[i].getProduct().getPrice());
+            // Flip all bits of negative prices and only the sign bit of positive ones, then invert for descending order
+            keys[i] = ~(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+        }
+        radixSort(lines, size);
+
+        if (thenByName) {
+            int runStart = 0;
+            for (int i = 1; i <= size; i++) {
+                if (i == size || keys[i] != keys[runStart]) {
+                    if (i - runStart > 1) {
+                        Arrays.sort(lines, runStart, i, BY_NAME);
+                    }
+                    runStart = i;
+                }
+            }
+        }
+    }
+
+    // Stable LSD radix sort of the unsigned keys, moving the lines along with them
+    private void radixSort(CartLine[] lines, int size) {
+        for (int[] count : counts) {
+            Arrays.fill(count, 0);
+        }
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < PASSES; pass++) {
+                counts[pass][(int) (key >>> (pass * RADIX_BITS)) & (BUCKETS - 1)]++;
+            }
+        }
+
+        long[] sourceKeys = keys;
+        long[] targetKeys = keyBuffer;
+        CartLine[] sourceLines = lines;
+        CartLine[] targetLines = lineBuffer;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int[] count = counts[pass];
+            int shift = pass * RADIX_BITS;
+            // Skip digits that are the same for every key, e.g. the low mantissa bits of round prices
+            if (count[(int) (sourceKeys[0] >>> shift) & (BUCKETS - 1)] == size) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                int bucketSize = count[bucket];
+                count[bucket] = offset;
+                offset += bucketSize;
+            }
+            for (int i = 0; i < size; i++) {
+                int bucket = (int) (sourceKeys[i] >>> shift) & (BUCKETS - 1);
+                int target = count[bucket]++;
+                targetKeys[target] = sourceKeys[i];
+                targetLines[target] = sourceLines[i];
+            }
+
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            CartLine[] swapLines = sourceLines;
+            sourceLines = targetLines;
+            targetLines = swapLines;
+        }
+
+        if (sourceLines != lines) {
+            System.arraycopy(sourceKeys, 0, keys, 0, size);
+            System.arraycopy(sourceLines, 0, lines, 0, size);
+        }
+        // Do not keep the cart's lines reachable from the scratch space
+        Arrays.fill(lineBuffer, 0, size, null);
+    }
+}
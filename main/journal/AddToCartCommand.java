@@ -0,0 +1,47 @@
+package main.journal;
+
+import main.CartSnapshot;
+import main.Koszyk;
+import main.Product;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Adds units of a product to the cart.
+ * The record carries the product's discount price, which prices the full-price units,
+ * so a product that comes back with a discount left from an earlier promotion is recovered at that price.
+ */
+public class AddToCartCommand implements CartCommand {
+    private final Product product;
+    private final int quantity;
+    private double productDiscountPrice;
+    private CartSnapshot before;
+    private CartSnapshot after;
+
+    public AddToCartCommand(Product product, int quantity) {
+        this.product = product;
+        this.quantity = quantity;
+    }
+
+    @Override
+    public void execute(Koszyk cart) {
+        before = cart.createLineSnapshot(product);
+        productDiscountPrice = product.getDiscountPrice();
+        cart.addToCart(product, quantity);
+        after = cart.createLineSnapshot(product);
+    }
+
+    @Override
+    public CartCommand inverse() {
+        return new RestoreLinesCommand(before, after);
+    }
+
+    @Override
+    public void writeTo(DataOutput out, CartJournal journal) throws IOException {
+        out.writeByte(CartJournal.RECORD_ADD);
+        journal.writeProduct(out, product);
+        out.writeInt(quantity);
+        out.writeDouble(productDiscountPrice);
+    }
+}
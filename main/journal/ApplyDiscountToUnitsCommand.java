@@ -0,0 +1,23 @@
+package main.journal;
+
+import main.Koszyk;
+
+/**
+ * Sells some units of a product in the cart at a discount.
+ */
+public class ApplyDiscountToUnitsCommand extends ChangeLinesCommand {
+    private final String productCode;
+    private final double discountPercent;
+    private final int units;
+
+    public ApplyDiscountToUnitsCommand(String productCode, double discountPercent, int units) {
+        this.productCode = productCode;
+        this.discountPercent = discountPercent;
+        this.units = units;
+    }
+
+    @Override
+    protected double change(Koszyk cart) {
+        return cart.applyDiscountToUnits(productCode, discountPercent, units);
+    }
+}
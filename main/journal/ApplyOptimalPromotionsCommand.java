@@ -0,0 +1,105 @@
+package main.journal;
+
+import main.CartSnapshot;
+import main.Koszyk;
+import main.promotion.Promotion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tries every order of the applicable promotions and applies the one that saves the most.
+ * The orders tried are not journaled, only the lines changed by the best one.
+ */
+public class ApplyOptimalPromotionsCommand extends ChangeLinesCommand {
+    private final List<Promotion> promotions;
+
+    public ApplyOptimalPromotionsCommand(List<Promotion> promotions) {
+        this.promotions = new ArrayList<>(promotions);
+    }
+
+    @Override
+    protected double change(Koszyk cart) {
+        // Remember the cart so every order is tried on the same state
+        CartSnapshot initialState = cart.createSnapshot();
+
+        // Reset all discounts before applying promotions
+        cart.resetAllDiscounts();
+
+        // Get all applicable promotions
+        List<Promotion> applicablePromotions = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            if (promotion.isApplicable(cart)) {
+                applicablePromotions.add(promotion);
+            }
+        }
+
+        // If there are no applicable promotions, return 0
+        if (applicablePromotions.isEmpty()) {
+            return 0;
+        }
+
+        // Try all possible permutations of promotions to find the optimal order
+        List<List<Promotion>> allPermutations = generatePermutations(applicablePromotions);
+
+        double maxSavings = 0;
+        List<Promotion> bestOrder = new ArrayList<>();
+
+        for (List<Promotion> permutation : allPermutations) {
+            // Reset all discounts
+            cart.resetAllDiscounts();
+
+            // Apply promotions in this order
+            double totalSaved = 0;
+            for (Promotion promotion : permutation) {
+                if (promotion.isApplicable(cart)) {
+                    totalSaved += promotion.apply(cart);
+                }
+            }
+
+            // Update the maximum savings if this order is better
+            if (totalSaved > maxSavings) {
+                maxSavings = totalSaved;
+                bestOrder = permutation;
+            }
+        }
+
+        // Apply the best order of promotions
+        cart.restoreSnapshot(initialState);
+        cart.resetAllDiscounts();
+        double totalSaved = 0;
+        for (Promotion promotion : bestOrder) {
+            if (promotion.isApplicable(cart)) {
+                totalSaved += promotion.apply(cart);
+            }
+        }
+        return totalSaved;
+    }
+
+    private List<List<Promotion>> generatePermutations(List<Promotion> promotions) {
+        List<List<Promotion>> result = new ArrayList<>();
+        generatePermutationsHelper(promotions, new ArrayList<>(), result, new boolean[promotions.size()]);
+        return result;
+    }
+
+    private void generatePermutationsHelper(List<Promotion> promotions, List<Promotion> current, List<List<Promotion>> result, boolean[] used) {
+        if (current.size() == promotions.size()) {
+            result.add(new ArrayList<>(current));
+            return;
+        }
+
+        for (int i = 0; i < promotions.size(); i++) {
+            if (used[i]) {
+                continue;
+            }
+
+            used[i] = true;
+            current.add(promotions.get(i));
+
+            generatePermutationsHelper(promotions, current, result, used);
+
+            used[i] = false;
+            current.remove(current.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package main.journal;
+
+import main.Koszyk;
+import main.promotion.Promotion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resets all discounts and applies the applicable promotions in the given order.
+ */
+public class ApplyPromotionsCommand extends ChangeLinesCommand {
+    private final List<Promotion> promotions;
+
+    public ApplyPromotionsCommand(List<Promotion> promotions) {
+        this.promotions = new ArrayList<>(promotions);
+    }
+
+    @Override
+    protected double change(Koszyk cart) {
+        cart.resetAllDiscounts();
+        double totalSaved = 0;
+        for (Promotion promotion : promotions) {
+            if (promotion.isApplicable(cart)) {
+                totalSaved += promotion.apply(cart);
+            }
+        }
+        return totalSaved;
+    }
+}
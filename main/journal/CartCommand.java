@@ -0,0 +1,32 @@
+package main.journal;
+
+import main.Koszyk;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A single change made to a shopping cart (Command pattern).
+ * Commands are recorded in a {@link CartJournal} so that they can be undone, redone and replayed.
+ */
+public interface CartCommand {
+    /**
+     * Applies the change to the cart.
+     * @param cart The cart to change.
+     */
+    void execute(Koszyk cart);
+
+    /**
+     * Creates the command that reverts this one. Only valid after {@link #execute(Koszyk)}.
+     * @return The inverse command.
+     */
+    CartCommand inverse();
+
+    /**
+     * Writes the journal record for this command. Only valid after {@link #execute(Koszyk)}.
+     * @param out The output to write to.
+     * @param journal The journal the record belongs to, which assigns the product ids.
+     * @throws IOException If writing fails.
+     */
+    void writeTo(DataOutput out, CartJournal journal) throws IOException;
+}
@@ -0,0 +1,564 @@
+package main.journal;
+
+import main.CartSnapshot;
+import main.Koszyk;
+import main.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the commands executed on a cart.
+ * Every executed, undone or redone command is recorded, so the same journal drives undo/redo
+ * and, when the journal is backed by a directory, rebuilds the cart after a restart.
+ * Records are buffered and written to disk in groups; a snapshot of the whole cart is written
+ * periodically so recovery only has to replay the records written since the last snapshot.
+ * Products are written with an id assigned per journal by object identity, matching how the cart
+ * keeps one line per product object; line order, including sorting, is journaled as well.
+ * The journal attaches itself to its cart, so changes made directly on the cart are recorded as commands too.
+ */
+public class CartJournal implements Closeable {
+    static final byte RECORD_ADD = 1;
+    static final byte RECORD_REMOVE = 2;
+    static final byte RECORD_LINES = 3;
+    static final byte RECORD_ORDER = 4;
+
+    /**
+     * The number of commands kept for undo unless configured otherwise.
+     */
+    public static final int DEFAULT_UNDO_DEPTH = 100;
+
+    private static final String JOURNAL_FILE = "journal.bin";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    // Journal file: epoch, then records of [length][crc][payload]
+    private static final int JOURNAL_HEADER_SIZE = Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final Koszyk cart;
+    private final Path directory;
+    private final int groupCommitSize;
+    private final int snapshotInterval;
+    private final int maxUndoDepth;
+    private final Map<Product, Integer> productIds;
+    private int nextProductId;
+    private final Deque<CartCommand> undoStack;
+    private final Deque<CartCommand> redoStack;
+    private final ByteArrayOutputStream pending;
+    private int pendingRecords;
+    private int recordsSinceSnapshot;
+    private long epoch;
+    private FileChannel journalChannel;
+    // Number of commands currently changing the cart, whose changes to the cart must not be recorded again
+    private int executing;
+
+    /**
+     * Creates an in-memory journal for the given cart. It supports undo/redo but nothing is persisted.
+     * @param cart The cart to record commands for.
+     */
+    public CartJournal(Koszyk cart) {
+        this(cart, DEFAULT_UNDO_DEPTH);
+    }
+
+    /**
+     * Creates an in-memory journal for the given cart. It supports undo/redo but nothing is persisted.
+     * @param cart The cart to record commands for.
+     * @param maxUndoDepth The number of commands kept for undo; older ones are forgotten.
+     */
+    public CartJournal(Koszyk cart, int maxUndoDepth) {
+        this(cart, null, 1, 0, maxUndoDepth, 0);
+    }
+
+    private CartJournal(Koszyk cart, Path directory, int groupCommitSize, int snapshotInterval, int maxUndoDepth, long epoch) {
+        this.cart = cart;
+        this.directory = directory;
+        this.groupCommitSize = Math.max(1, groupCommitSize);
+        this.snapshotInterval = snapshotInterval;
+        this.maxUndoDepth = Math.max(0, maxUndoDepth);
+        this.epoch = epoch;
+        productIds = new IdentityHashMap<>();
+        nextProductId = 0;
+        undoStack = new ArrayDeque<>();
+        redoStack = new ArrayDeque<>();
+        pending = new ByteArrayOutputStream();
+        cart.setJournal(this);
+    }
+
+    /**
+     * Opens the journal stored in the given directory, rebuilding the cart from its snapshot and records.
+     * @param directory The directory holding the journal; created if missing.
+     * @param initialCartCapacity The initial capacity of the rebuilt cart.
+     * @param groupCommitSize The number of records written to disk together.
+     * @param snapshotInterval The number of records after which a snapshot is taken, or 0 to snapshot only on request.
+     * @return The opened journal.
+     * @throws IOException If the journal cannot be read or opened.
+     */
+    public static CartJournal open(Path directory, int initialCartCapacity, int groupCommitSize, int snapshotInterval) throws IOException {
+        return open(directory, initialCartCapacity, groupCommitSize, snapshotInterval, DEFAULT_UNDO_DEPTH);
+    }
+
+    /**
+     * Opens the journal stored in the given directory, rebuilding the cart from its snapshot and records.
+     * @param directory The directory holding the journal; created if missing.
+     * @param initialCartCapacity The initial capacity of the rebuilt cart.
+     * @param groupCommitSize The number of records written to disk together.
+     * @param snapshotInterval The number of records after which a snapshot is taken, or 0 to snapshot only on request.
+     * @param maxUndoDepth The number of commands kept for undo; older ones are forgotten.
+     * @return The opened journal.
+     * @throws IOException If the journal cannot be read or opened.
+     */
+    public static CartJournal open(Path directory, int initialCartCapacity, int groupCommitSize, int snapshotInterval,
+                                   int maxUndoDepth) throws IOException {
+        Files.createDirectories(directory);
+        Koszyk cart = new Koszyk(initialCartCapacity);
+        Recovery recovery = recover(directory, cart);
+
+        CartJournal journal = new CartJournal(cart, directory, groupCommitSize, snapshotInterval, maxUndoDepth, recovery.epoch);
+        // Keep the ids the recovered products were written with
+        for (Map.Entry<Integer, Product> entry : recovery.productsById.entrySet()) {
+            journal.productIds.put(entry.getValue(), entry.getKey());
+            journal.nextProductId = Math.max(journal.nextProductId, entry.getKey() + 1);
+        }
+        journal.journalChannel = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (recovery.validJournalLength < JOURNAL_HEADER_SIZE) {
+            journal.resetJournalFile();
+        } else {
+            // Drop a record torn by a crash so new records are appended after the last complete one
+            journal.journalChannel.truncate(recovery.validJournalLength);
+            journal.journalChannel.position(recovery.validJournalLength);
+        }
+        return journal;
+    }
+
+    /**
+     * Rebuilds a cart from the journal stored in the given directory.
+     * @param directory The directory holding the journal.
+     * @param initialCartCapacity The initial capacity of the rebuilt cart.
+     * @return The rebuilt cart; empty if the directory holds no journal.
+     * @throws IOException If the journal cannot be read.
+     */
+    public static Koszyk recover(Path directory, int initialCartCapacity) throws IOException {
+        Koszyk cart = new Koszyk(initialCartCapacity);
+        recover(directory, cart);
+        return cart;
+    }
+
+    /**
+     * Rebuilds several carts in parallel, one per journal directory.
+     * @param directories The directories holding the journals.
+     * @param initialCartCapacity The initial capacity of the rebuilt carts.
+     * @return The rebuilt carts by directory.
+     */
+    public static Map<Path, Koszyk> recoverAll(Collection<Path> directories, int initialCartCapacity) {
+        Map<Path, Koszyk> carts = new ConcurrentHashMap<>();
+        directories.parallelStream().forEach(directory -> {
+            try {
+                carts.put(directory, recover(directory, initialCartCapacity));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return carts;
+    }
+
+    /**
+     * Gets the cart the journal records commands for.
+     * @return The cart.
+     */
+    public Koszyk getCart() {
+        return cart;
+    }
+
+    /**
+     * Executes a command on the cart and records it. Clears the redo history.
+     * @param command The command to execute.
+     */
+    public void execute(CartCommand command) {
+        run(command);
+        pushUndo(command);
+        redoStack.clear();
+        record(command);
+    }
+
+    /**
+     * Reverts the most recently executed or redone command.
+     * @return True if a command was undone, false if there was nothing to undo.
+     */
+    public boolean undo() {
+        if (undoStack.isEmpty()) {
+            return false;
+        }
+        CartCommand inverse = undoStack.pop().inverse();
+        run(inverse);
+        redoStack.push(inverse);
+        record(inverse);
+        return true;
+    }
+
+    /**
+     * Executes again the most recently undone command.
+     * @return True if a command was redone, false if there was nothing to redo.
+     */
+    public boolean redo() {
+        if (redoStack.isEmpty()) {
+            return false;
+        }
+        CartCommand command = redoStack.pop().inverse();
+        run(command);
+        pushUndo(command);
+        record(command);
+        return true;
+    }
+
+    /**
+     * Tells whether the journal is running a command on its cart.
+     * While it is, the cart makes its changes directly instead of sending them to the journal.
+     * @return True if a command is running, false otherwise.
+     */
+    public boolean isExecuting() {
+        return executing > 0;
+    }
+
+    /**
+     * Writes all buffered records to disk.
+     */
+    public void commit() {
+        if (journalChannel == null || pendingRecords == 0) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer);
+            }
+            journalChannel.force(false);
+            pending.reset();
+            pendingRecords = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the whole cart and empties the journal file.
+     */
+    public void snapshot() {
+        if (journalChannel == null) {
+            return;
+        }
+        commit();
+        try {
+            CartSnapshot state = cart.createSnapshot();
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            writeLines(new DataOutputStream(payload), state);
+
+            // The snapshot carries the next epoch; a journal still on the old epoch is already part of it
+            long nextEpoch = epoch + 1;
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + RECORD_HEADER_SIZE + payload.size());
+                buffer.putLong(nextEpoch);
+                putRecord(buffer, payload.toByteArray());
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Make the rename durable before the journal it replaces is emptied
+            forceDirectory();
+
+            epoch = nextEpoch;
+            resetJournalFile();
+            recordsSinceSnapshot = 0;
+            retainProductIds(state);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Commits the buffered records and closes the journal file.
+     * @throws IOException If closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journalChannel != null) {
+            commit();
+            journalChannel.close();
+            journalChannel = null;
+        }
+    }
+
+    private void run(CartCommand command) {
+        executing++;
+        try {
+            command.execute(cart);
+        } finally {
+            executing--;
+        }
+    }
+
+    private void record(CartCommand command) {
+        if (journalChannel == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            command.writeTo(new DataOutputStream(payload), this);
+
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.size());
+            putRecord(buffer, payload.toByteArray());
+            pending.write(buffer.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        pendingRecords++;
+        recordsSinceSnapshot++;
+        if (pendingRecords >= groupCommitSize) {
+            commit();
+        }
+        if (snapshotInterval > 0 && recordsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    private void pushUndo(CartCommand command) {
+        undoStack.push(command);
+        while (undoStack.size() > maxUndoDepth) {
+            undoStack.removeLast();
+        }
+    }
+
+    // Records after a snapshot can only refer to the products in it, so the ids of all other products are dropped.
+    // New ids keep counting up, so a dropped product that comes back is written again under a fresh id
+    private void retainProductIds(CartSnapshot state) {
+        Map<Product, Integer> retained = new IdentityHashMap<>();
+        for (int i = 0; i < state.getLineCount(); i++) {
+            retained.put(state.getProduct(i), productIds.get(state.getProduct(i)));
+        }
+        productIds.clear();
+        productIds.putAll(retained);
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories cannot be opened on Windows, where the file system commits the rename itself
+        }
+    }
+
+    private void resetJournalFile() throws IOException {
+        journalChannel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        header.putLong(epoch);
+        header.flip();
+        journalChannel.position(0);
+        while (header.hasRemaining()) {
+            journalChannel.write(header);
+        }
+        journalChannel.force(false);
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+    }
+
+    // Reads one [length][crc][payload] record, or returns null if it is incomplete or corrupt
+    private static byte[] readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 0 || buffer.remaining() < length) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    private static class Recovery {
+        private long epoch;
+        private long validJournalLength;
+        private final Map<Integer, Product> productsById = new HashMap<>();
+    }
+
+    private static Recovery recover(Path directory, Koszyk cart) throws IOException {
+        Recovery recovery = new Recovery();
+        Map<Integer, Product> productsById = recovery.productsById;
+
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+            byte[] payload = null;
+            if (buffer.remaining() >= Long.BYTES) {
+                recovery.epoch = buffer.getLong();
+                payload = readRecord(buffer);
+            }
+            if (payload == null) {
+                throw new IOException("Corrupt cart snapshot: " + snapshotFile);
+            }
+            cart.restoreSnapshot(readLines(new DataInputStream(new ByteArrayInputStream(payload)), productsById));
+        }
+
+        Path journalFile = directory.resolve(JOURNAL_FILE);
+        if (!Files.exists(journalFile)) {
+            return recovery;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+        if (buffer.remaining() < JOURNAL_HEADER_SIZE || buffer.getLong() != recovery.epoch) {
+            // Written before the snapshot was taken, so its records are already in the snapshot
+            return recovery;
+        }
+        recovery.validJournalLength = buffer.position();
+
+        byte[] payload;
+        while ((payload = readRecord(buffer)) != null) {
+            replay(new DataInputStream(new ByteArrayInputStream(payload)), cart, productsById);
+            recovery.validJournalLength = buffer.position();
+        }
+        return recovery;
+    }
+
+    private static void replay(DataInput in, Koszyk cart, Map<Integer, Product> productsById) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case RECORD_ADD: {
+                Product product = readProduct(in, productsById);
+                int quantity = in.readInt();
+                product.restoreDiscountPrice(in.readDouble());
+                cart.addToCart(product, quantity);
+                break;
+            }
+            case RECORD_REMOVE: {
+                Product product = productsById.get(in.readInt());
+                int quantity = in.readInt();
+                if (product != null) {
+                    cart.removeFromCart(product, quantity);
+                }
+                break;
+            }
+            case RECORD_LINES: {
+                CartSnapshot target = readLines(in, productsById);
+                cart.restoreLines(target, readProductIds(in, productsById));
+                break;
+            }
+            case RECORD_ORDER:
+                cart.reorderLines(readProductIds(in, productsById));
+                break;
+            default:
+                throw new IOException("Unknown cart journal record type: " + type);
+        }
+    }
+
+    // Ids are assigned by object identity, so equal-looking products stay separate lines after recovery
+    int productId(Product product) {
+        Integer id = productIds.get(product);
+        if (id == null) {
+            id = nextProductId++;
+            productIds.put(product, id);
+        }
+        return id;
+    }
+
+    void writeProduct(DataOutput out, Product product) throws IOException {
+        out.writeInt(productId(product));
+        out.writeUTF(product.getCode());
+        out.writeUTF(product.getName());
+        out.writeDouble(product.getPrice());
+    }
+
+    private static Product readProduct(DataInput in, Map<Integer, Product> productsById) throws IOException {
+        int id = in.readInt();
+        String code = in.readUTF();
+        String name = in.readUTF();
+        double price = in.readDouble();
+        return productsById.computeIfAbsent(id, i -> new Product(code, name, price));
+    }
+
+    private static Product[] readProductIds(DataInput in, Map<Integer, Product> productsById) throws IOException {
+        int count = in.readInt();
+        Product[] products = new Product[count];
+        int known = 0;
+        for (int i = 0; i < count; i++) {
+            Product product = productsById.get(in.readInt());
+            if (product != null) {
+                products[known++] = product;
+            }
+        }
+        return known == count ? products : Arrays.copyOf(products, known);
+    }
+
+    void writeLines(DataOutput out, CartSnapshot snapshot) throws IOException {
+        out.writeInt(snapshot.getLineCount());
+        for (int i = 0; i < snapshot.getLineCount(); i++) {
+            out.writeInt(snapshot.getPosition(i));
+            writeProduct(out, snapshot.getProduct(i));
+            out.writeInt(snapshot.getQuantity(i));
+            out.writeInt(snapshot.getFreeUnits(i));
+            out.writeInt(snapshot.getDiscountedUnits(i));
+            out.writeDouble(snapshot.getLineDiscountPrice(i));
+            out.writeDouble(snapshot.getProductDiscountPrice(i));
+        }
+    }
+
+    private static CartSnapshot readLines(DataInput in, Map<Integer, Product> productsById) throws IOException {
+        int lineCount = in.readInt();
+        int[] positions = new int[lineCount];
+        Product[] products = new Product[lineCount];
+        int[] quantities = new int[lineCount];
+        int[] freeUnits = new int[lineCount];
+        int[] discountedUnits = new int[lineCount];
+        double[] lineDiscountPrices = new double[lineCount];
+        double[] productDiscountPrices = new double[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            positions[i] = in.readInt();
+            products[i] = readProduct(in, productsById);
+            quantities[i] = in.readInt();
+            freeUnits[i] = in.readInt();
+            discountedUnits[i] = in.readInt();
+            lineDiscountPrices[i] = in.readDouble();
+            productDiscountPrices[i] = in.readDouble();
+        }
+        return new CartSnapshot(positions, products, quantities, freeUnits,
+                discountedUnits, lineDiscountPrices, productDiscountPrices);
+    }
+}
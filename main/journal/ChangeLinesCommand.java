@@ -0,0 +1,50 @@
+package main.journal;
+
+import main.CartSnapshot;
+import main.Koszyk;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Base for commands that change lines of the cart in ways that cannot simply be repeated, such as discounts.
+ * The cart is compared before and after the change and only the lines that changed are kept for undo
+ * and written to the journal, so replaying and redoing never run the change a second time.
+ */
+public abstract class ChangeLinesCommand implements CartCommand {
+    private RestoreLinesCommand changes;
+    private double saved;
+
+    @Override
+    public void execute(Koszyk cart) {
+        CartSnapshot before = cart.createSnapshot();
+        saved = change(cart);
+        CartSnapshot after = cart.createSnapshot();
+        changes = new RestoreLinesCommand(after.changedFrom(before), before.changedFrom(after));
+    }
+
+    /**
+     * Makes the change on the cart.
+     * @param cart The cart to change.
+     * @return The amount saved by the change.
+     */
+    protected abstract double change(Koszyk cart);
+
+    /**
+     * Gets the amount saved by the change. Only valid after {@link #execute(Koszyk)}.
+     * @return The amount saved.
+     */
+    public double getSaved() {
+        return saved;
+    }
+
+    @Override
+    public CartCommand inverse() {
+        return changes.inverse();
+    }
+
+    @Override
+    public void writeTo(DataOutput out, CartJournal journal) throws IOException {
+        changes.writeTo(out, journal);
+    }
+}
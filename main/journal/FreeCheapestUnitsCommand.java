@@ -0,0 +1,19 @@
+package main.journal;
+
+import main.Koszyk;
+
+/**
+ * Gives away the cheapest paid units of the cart for free.
+ */
+public class FreeCheapestUnitsCommand extends ChangeLinesCommand {
+    private final int count;
+
+    public FreeCheapestUnitsCommand(int count) {
+        this.count = count;
+    }
+
+    @Override
+    protected double change(Koszyk cart) {
+        return cart.freeCheapestUnits(count);
+    }
+}
@@ -0,0 +1,43 @@
+package main.journal;
+
+import main.CartSnapshot;
+import main.Koszyk;
+import main.Product;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Removes units of a product from the cart.
+ */
+public class RemoveFromCartCommand implements CartCommand {
+    private final Product product;
+    private final int quantity;
+    private CartSnapshot before;
+    private CartSnapshot after;
+
+    public RemoveFromCartCommand(Product product, int quantity) {
+        this.product = product;
+        this.quantity = quantity;
+    }
+
+    @Override
+    public void execute(Koszyk cart) {
+        // Undo puts the line back where it was, with its discount state
+        before = cart.createLineSnapshot(product);
+        cart.removeFromCart(product, quantity);
+        after = cart.createLineSnapshot(product);
+    }
+
+    @Override
+    public CartCommand inverse() {
+        return new RestoreLinesCommand(before, after);
+    }
+
+    @Override
+    public void writeTo(DataOutput out, CartJournal journal) throws IOException {
+        out.writeByte(CartJournal.RECORD_REMOVE);
+        out.writeInt(journal.productId(product));
+        out.writeInt(quantity);
+    }
+}
@@ -0,0 +1,43 @@
+package main.journal;
+
+import main.Koszyk;
+import main.Product;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Puts the lines of the cart into a previously captured order.
+ */
+public class ReorderLinesCommand implements CartCommand {
+    private final Product[] target;
+    private final Product[] previous;
+
+    /**
+     * @param target The order to restore.
+     * @param previous The order before the restore, restored again by the inverse.
+     */
+    public ReorderLinesCommand(Product[] target, Product[] previous) {
+        this.target = target;
+        this.previous = previous;
+    }
+
+    @Override
+    public void execute(Koszyk cart) {
+        cart.reorderLines(target);
+    }
+
+    @Override
+    public CartCommand inverse() {
+        return new ReorderLinesCommand(previous, target);
+    }
+
+    @Override
+    public void writeTo(DataOutput out, CartJournal journal) throws IOException {
+        out.writeByte(CartJournal.RECORD_ORDER);
+        out.writeInt(target.length);
+        for (Product product : target) {
+            out.writeInt(journal.productId(product));
+        }
+    }
+}
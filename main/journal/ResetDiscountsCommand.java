@@ -0,0 +1,14 @@
+package main.journal;
+
+import main.Koszyk;
+
+/**
+ * Removes all discounts and free units from the cart.
+ */
+public class ResetDiscountsCommand extends ChangeLinesCommand {
+    @Override
+    protected double change(Koszyk cart) {
+        cart.resetAllDiscounts();
+        return 0;
+    }
+}
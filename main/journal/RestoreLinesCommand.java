@@ -0,0 +1,45 @@
+package main.journal;
+
+import main.CartSnapshot;
+import main.Koszyk;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Puts some lines of the cart back into a previously captured state.
+ * Lines that exist only in the previous state are removed.
+ */
+public class RestoreLinesCommand implements CartCommand {
+    private final CartSnapshot target;
+    private final CartSnapshot previous;
+
+    /**
+     * @param target The lines to restore.
+     * @param previous The same lines as they are before the restore, restored again by the inverse.
+     */
+    public RestoreLinesCommand(CartSnapshot target, CartSnapshot previous) {
+        this.target = target;
+        this.previous = previous;
+    }
+
+    @Override
+    public void execute(Koszyk cart) {
+        cart.restoreLines(target, previous.getProducts());
+    }
+
+    @Override
+    public CartCommand inverse() {
+        return new RestoreLinesCommand(previous, target);
+    }
+
+    @Override
+    public void writeTo(DataOutput out, CartJournal journal) throws IOException {
+        out.writeByte(CartJournal.RECORD_LINES);
+        journal.writeLines(out, target);
+        out.writeInt(previous.getLineCount());
+        for (int i = 0; i < previous.getLineCount(); i++) {
+            out.writeInt(journal.productId(previous.getProduct(i)));
+        }
+    }
+}
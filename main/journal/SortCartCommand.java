@@ -0,0 +1,45 @@
+package main.journal;
+
+import main.Koszyk;
+import main.Product;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+
+/**
+ * Sorts the lines of the cart. The journal stores the resulting order rather than the comparator.
+ */
+public class SortCartCommand implements CartCommand {
+    private final Comparator<Product> comparator;
+    private Product[] before;
+    private Product[] after;
+
+    /**
+     * @param comparator The comparator to sort with, or null for the natural ordering.
+     */
+    public SortCartCommand(Comparator<Product> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public void execute(Koszyk cart) {
+        before = cart.getLineOrder();
+        if (comparator == null) {
+            cart.sortProducts();
+        } else {
+            cart.sortProducts(comparator);
+        }
+        after = cart.getLineOrder();
+    }
+
+    @Override
+    public CartCommand inverse() {
+        return new ReorderLinesCommand(before, after);
+    }
+
+    @Override
+    public void writeTo(DataOutput out, CartJournal journal) throws IOException {
+        new ReorderLinesCommand(after, before).writeTo(out, journal);
+    }
+}
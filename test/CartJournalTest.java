@@ -0,0 +1,270 @@
+package test;
+
+import main.JavaMarkt;
+import main.Koszyk;
+import main.Product;
+import main.journal.AddToCartCommand;
+import main.journal.CartJournal;
+import main.promotion.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CartJournalTest {
+    @TempDir
+    Path directory;
+
+    private final Product laptop = new Product("L001", "Laptop", 2500.0);
+    private final Product phone = new Product("P001", "Phone", 1200.0);
+    private final Product mouse = new Product("M001", "Mouse", 80.0);
+
+    @Test
+    public void testUndoRedoAddToCart() {
+        JavaMarkt javaMarkt = new JavaMarkt(5);
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(mouse, 3);
+
+        assertTrue(javaMarkt.undo());
+        assertArrayEquals(new Product[]{laptop}, javaMarkt.getCart().getProducts());
+
+        assertTrue(javaMarkt.redo());
+        assertEquals(4, javaMarkt.getCart().getSize());
+        assertFalse(javaMarkt.redo());
+    }
+
+    @Test
+    public void testUndoRedoPromotions() {
+        JavaMarkt javaMarkt = new JavaMarkt(5);
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(phone);
+        javaMarkt.addPromotion(new DiscountForOrderOverThreshold(3000.0, 5.0));
+
+        javaMarkt.applyPromotions();
+        assertEquals(3515.0, javaMarkt.calculateTotalPrice(), 0.01);
+
+        javaMarkt.undo();
+        assertEquals(3700.0, javaMarkt.calculateTotalPrice(), 0.01);
+
+        javaMarkt.redo();
+        assertEquals(3515.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testUndoRemoveRestoresPositionAndDiscounts() {
+        JavaMarkt javaMarkt = new JavaMarkt(5);
+        javaMarkt.addToCart(mouse, 3);
+        javaMarkt.addToCart(laptop);
+        javaMarkt.getCart().freeCheapestUnits(1);
+
+        javaMarkt.removeFromCart(mouse, 3);
+        javaMarkt.undo();
+
+        assertArrayEquals(new Product[]{mouse, mouse, mouse, laptop}, javaMarkt.getCart().getProducts());
+        assertEquals(2500.0 + 2 * 80.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testUndoDiscountMadeDirectlyOnCart() {
+        JavaMarkt javaMarkt = new JavaMarkt(5);
+        javaMarkt.addToCart(mouse, 5);
+
+        javaMarkt.getCart().applyDiscountToUnits("M001", 30.0, 1);
+        assertEquals(4 * 80.0 + 56.0, javaMarkt.calculateTotalPrice(), 0.01);
+
+        assertTrue(javaMarkt.undo());
+        assertEquals(5 * 80.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRecoverChangesMadeDirectlyOnCart() throws IOException {
+        double liveTotal;
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            JavaMarkt javaMarkt = new JavaMarkt(journal);
+            javaMarkt.addToCart(mouse, 2);
+            javaMarkt.addToCart(laptop);
+            javaMarkt.getCart().freeCheapestUnits(1);
+            javaMarkt.getCart().addToCart(phone);
+            javaMarkt.getCart().sortProducts();
+            liveTotal = javaMarkt.calculateTotalPrice();
+        }
+
+        Koszyk recovered = CartJournal.recover(directory, 5);
+
+        assertEquals(2500.0 + 1200.0 + 80.0, liveTotal, 0.01);
+        assertEquals(liveTotal, recovered.calculateTotalPrice(), 0.01);
+        assertEquals("Laptop", recovered.getProducts()[0].getName());
+    }
+
+    @Test
+    public void testUndoDepthIsLimited() {
+        CartJournal journal = new CartJournal(new Koszyk(5), 2);
+        journal.execute(new AddToCartCommand(laptop, 1));
+        journal.execute(new AddToCartCommand(phone, 1));
+        journal.execute(new AddToCartCommand(mouse, 1));
+
+        assertTrue(journal.undo());
+        assertTrue(journal.undo());
+        assertFalse(journal.undo());
+        assertArrayEquals(new Product[]{laptop}, journal.getCart().getProducts());
+    }
+
+    @Test
+    public void testUndoSort() {
+        JavaMarkt javaMarkt = new JavaMarkt(5);
+        javaMarkt.addToCart(mouse);
+        javaMarkt.addToCart(laptop);
+
+        javaMarkt.sortCart();
+        javaMarkt.undo();
+
+        assertArrayEquals(new Product[]{mouse, laptop}, javaMarkt.getCart().getProducts());
+    }
+
+    @Test
+    public void testRecoverProductsWithSameCode() throws IOException {
+        Product cheapMouse = new Product("M001", "Mouse", 80.0);
+        Product expensiveMouse = new Product("M001", "Mouse", 90.0);
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            journal.execute(new AddToCartCommand(cheapMouse, 1));
+            journal.execute(new AddToCartCommand(expensiveMouse, 1));
+        }
+
+        Koszyk recovered = CartJournal.recover(directory, 5);
+
+        assertEquals(2, recovered.getLineCount());
+        assertEquals(170.0, recovered.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRecoverSortedCart() throws IOException {
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            JavaMarkt javaMarkt = new JavaMarkt(journal);
+            javaMarkt.addToCart(mouse);
+            javaMarkt.addToCart(laptop);
+            javaMarkt.addToCart(phone);
+            javaMarkt.sortCart();
+        }
+
+        Product[] recovered = CartJournal.recover(directory, 5).getProducts();
+
+        assertEquals("Laptop", recovered[0].getName());
+        assertEquals("Phone", recovered[1].getName());
+        assertEquals("Mouse", recovered[2].getName());
+    }
+
+    @Test
+    public void testRecoverCartAfterRestart() throws IOException {
+        try (CartJournal journal = CartJournal.open(directory, 5, 10, 0)) {
+            JavaMarkt javaMarkt = new JavaMarkt(journal);
+            javaMarkt.addToCart(laptop);
+            javaMarkt.addToCart(phone);
+            javaMarkt.addToCart(mouse, 4);
+            javaMarkt.removeFromCart(mouse);
+            javaMarkt.addPromotion(new DiscountForOrderOverThreshold(3000.0, 5.0));
+            javaMarkt.applyPromotions();
+        }
+
+        Koszyk recovered = CartJournal.recover(directory, 5);
+
+        assertEquals(5, recovered.getSize());
+        assertEquals((2500.0 + 1200.0 + 3 * 80.0) * 0.95, recovered.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRecoverReaddedDiscountedProduct() throws IOException {
+        double liveTotal;
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            JavaMarkt javaMarkt = new JavaMarkt(journal);
+            javaMarkt.addToCart(laptop);
+            javaMarkt.addToCart(phone);
+            javaMarkt.addPromotion(new DiscountForOrderOverThreshold(3000.0, 5.0));
+            javaMarkt.applyPromotions();
+
+            // The laptop leaves the cart with its discount, which the snapshot no longer holds
+            javaMarkt.removeFromCart(laptop);
+            journal.snapshot();
+            javaMarkt.addToCart(laptop);
+            liveTotal = javaMarkt.calculateTotalPrice();
+        }
+
+        assertEquals(liveTotal, CartJournal.recover(directory, 5).calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRecoverProductReaddedAfterSnapshot() throws IOException {
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            JavaMarkt javaMarkt = new JavaMarkt(journal);
+            javaMarkt.addToCart(laptop);
+            javaMarkt.addToCart(mouse);
+            javaMarkt.removeFromCart(laptop);
+            // The laptop's id is dropped here, so it is written again under a new id
+            journal.snapshot();
+            javaMarkt.addToCart(laptop);
+            javaMarkt.removeFromCart(mouse);
+            javaMarkt.undo();
+        }
+
+        Koszyk recovered = CartJournal.recover(directory, 5);
+
+        assertEquals(2, recovered.getLineCount());
+        assertEquals(2580.0, recovered.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRecoverFromSnapshotAndJournal() throws IOException {
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 2)) {
+            journal.execute(new AddToCartCommand(laptop, 1));
+            journal.execute(new AddToCartCommand(phone, 1));
+            // Snapshot taken here, the next record goes to the emptied journal
+            journal.execute(new AddToCartCommand(mouse, 2));
+        }
+
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            assertEquals(4, journal.getCart().getSize());
+            assertEquals(3860.0, journal.getCart().calculateTotalPrice(), 0.01);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws IOException {
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            journal.execute(new AddToCartCommand(laptop, 1));
+            journal.execute(new AddToCartCommand(phone, 1));
+        }
+        Path journalFile = directory.resolve("journal.bin");
+        byte[] content = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(content, content.length - 3));
+
+        try (CartJournal journal = CartJournal.open(directory, 5, 1, 0)) {
+            assertEquals(1, journal.getCart().getSize());
+            journal.execute(new AddToCartCommand(mouse, 1));
+        }
+
+        assertEquals(2580.0, CartJournal.recover(directory, 5).calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRecoverAll() throws IOException {
+        Path first = directory.resolve("first");
+        Path second = directory.resolve("second");
+        try (CartJournal journal = CartJournal.open(first, 5, 1, 0)) {
+            journal.execute(new AddToCartCommand(laptop, 1));
+        }
+        try (CartJournal journal = CartJournal.open(second, 5, 1, 0)) {
+            journal.execute(new AddToCartCommand(mouse, 3));
+        }
+
+        Map<Path, Koszyk> carts = CartJournal.recoverAll(List.of(first, second), 5);
+
+        assertEquals(2500.0, carts.get(first).calculateTotalPrice(), 0.01);
+        assertEquals(240.0, carts.get(second).calculateTotalPrice(), 0.01);
+    }
+}
@@ -48,6 +48,115 @@ public class JavaMarktTest {
         assertArrayEquals(new Product[]{phone}, javaMarkt.getCart().getProducts());
     }
 
+    @Test
+    public void testAddSameProductMergesIntoOneLine() {
+        javaMarkt.addToCart(mouse, 500);
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(mouse);
+
+        assertEquals(502, javaMarkt.getCart().getSize());
+        assertEquals(2, javaMarkt.getCart().getLineCount());
+        assertEquals(501, javaMarkt.getCart().getLines()[0].getQuantity());
+        assertEquals(2500.0 + 501 * 80.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testRemoveQuantityFromCart() {
+        javaMarkt.addToCart(mouse, 3);
+        javaMarkt.addToCart(laptop);
+
+        javaMarkt.removeFromCart(mouse, 2);
+        assertArrayEquals(new Product[]{mouse, laptop}, javaMarkt.getCart().getProducts());
+
+        javaMarkt.removeFromCart(mouse);
+        assertEquals(1, javaMarkt.getCart().getLineCount());
+        assertArrayEquals(new Product[]{laptop}, javaMarkt.getCart().getProducts());
+    }
+
+    @Test
+    public void testUnitsOfSameProductAreGrouped() {
+        javaMarkt.addToCart(mouse);
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(mouse);
+
+        assertArrayEquals(new Product[]{mouse, mouse, laptop}, javaMarkt.getCart().getProducts());
+
+        javaMarkt.removeFromCart(mouse);
+        assertArrayEquals(new Product[]{mouse, laptop}, javaMarkt.getCart().getProducts());
+    }
+
+    @Test
+    public void testDiscountAppliesOnlyToChosenUnits() {
+        javaMarkt.addToCart(mouse, 500);
+
+        double saved = javaMarkt.getCart().applyDiscountToUnits("M001", 30.0, 1);
+
+        assertEquals(24.0, saved, 0.01);
+        assertEquals(499 * 80.0 + 56.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testDiscountsOnSameLineAccumulate() {
+        javaMarkt.addToCart(mouse, 5);
+
+        assertEquals(24.0, javaMarkt.getCart().applyDiscountToUnits("M001", 30.0, 1), 0.01);
+        assertEquals(24.0, javaMarkt.getCart().applyDiscountToUnits("M001", 30.0, 1), 0.01);
+        assertEquals(2, javaMarkt.getCart().getLines()[0].getDiscountedUnits());
+        assertEquals(3 * 80.0 + 2 * 56.0, javaMarkt.calculateTotalPrice(), 0.01);
+
+        // A different discount would re-price the discounted units, so it is rejected
+        assertEquals(0.0, javaMarkt.getCart().applyDiscountToUnits("M001", 50.0, 1), 0.01);
+        assertEquals(3 * 80.0 + 2 * 56.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testFreeCheapestUnitsReportsAmountActuallySaved() {
+        javaMarkt.addToCart(mouse, 3);
+        javaMarkt.getCart().applyDiscountToUnits("M001", 30.0, 1);
+        mouse.applyDiscount(50.0);
+        double totalBefore = javaMarkt.calculateTotalPrice();
+
+        double saved = javaMarkt.getCart().freeCheapestUnits(1);
+
+        assertEquals(56.0 + 2 * 40.0, totalBefore, 0.01);
+        assertEquals(totalBefore - javaMarkt.calculateTotalPrice(), saved, 0.01);
+    }
+
+    @Test
+    public void testFreeUnitsTakeDiscountedUnitsFirst() {
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(mouse, 3);
+        javaMarkt.getCart().applyDiscountToUnits("M001", 50.0, 1);
+
+        double saved = javaMarkt.getCart().freeCheapestUnits(2);
+
+        assertEquals(40.0 + 80.0, saved, 0.01);
+        assertEquals(2500.0 + 80.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testFreeCheapestUnits() {
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(mouse, 4);
+
+        double saved = javaMarkt.getCart().freeCheapestUnits(2);
+
+        assertEquals(160.0, saved, 0.01);
+        assertEquals(2660.0, javaMarkt.calculateTotalPrice(), 0.01);
+
+        javaMarkt.getCart().resetAllDiscounts();
+        assertEquals(2820.0, javaMarkt.calculateTotalPrice(), 0.01);
+    }
+
+    @Test
+    public void testFindNCheapestProductsWithQuantities() {
+        javaMarkt.addToCart(laptop);
+        javaMarkt.addToCart(mouse, 2);
+        javaMarkt.addToCart(keyboard);
+
+        assertArrayEquals(new Product[]{mouse, mouse, keyboard}, javaMarkt.findNCheapestProducts(3));
+    }
+
     @Test
     public void testSortCart() {
         javaMarkt.addToCart(mouse);
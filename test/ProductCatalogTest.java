@@ -0,0 +1,86 @@
+package test;
+
+import main.Product;
+import main.ProductCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCatalogTest {
+    private ProductCatalog catalog;
+    private Product laptop;
+    private Product phone;
+    private Product headphones;
+    private Product keyboard;
+    private Product mouse;
+
+    @BeforeEach
+    void setUp() {
+        laptop = new Product("L001", "Laptop", 2500.0);
+        phone = new Product("P001", "Phone", 1200.0);
+        headphones = new Product("H001", "Headphones", 350.0);
+        keyboard = new Product("K001", "Keyboard", 150.0);
+        mouse = new Product("M001", "Mouse", 80.0);
+        catalog = new ProductCatalog(new Product[]{mouse, laptop, keyboard, phone, headphones});
+    }
+
+    @Test
+    public void testFindCheapestAndMostExpensive() {
+        assertEquals(mouse, catalog.findCheapest());
+        assertEquals(laptop, catalog.findMostExpensive());
+
+        Product cable = new Product("C001", "Cable", 80.0);
+        catalog.add(cable);
+        assertEquals(cable, catalog.findCheapest());
+        assertEquals(catalog.findNCheapest(1)[0], catalog.findCheapest());
+    }
+
+    @Test
+    public void testFindNCheapestAndMostExpensive() {
+        assertArrayEquals(new Product[]{mouse, keyboard, headphones}, catalog.findNCheapest(3));
+        assertArrayEquals(new Product[]{laptop, phone}, catalog.findNMostExpensive(2));
+        assertEquals(5, catalog.findNMostExpensive(10).length);
+        assertEquals(0, catalog.findNCheapest(0).length);
+    }
+
+    @Test
+    public void testFindNCheapestKeepsTiesAlphabetical() {
+        Product cable = new Product("C001", "Cable", 80.0);
+        Product adapter = new Product("A001", "Adapter", 80.0);
+        catalog.add(cable);
+        catalog.add(adapter);
+
+        assertArrayEquals(new Product[]{adapter, cable, mouse, keyboard}, catalog.findNCheapest(4));
+        assertArrayEquals(new Product[]{adapter, cable}, catalog.findNCheapest(2));
+    }
+
+    @Test
+    public void testFindInPriceRange() {
+        assertArrayEquals(new Product[]{phone, headphones, keyboard}, catalog.findInPriceRange(150.0, 1200.0));
+        assertEquals(0, catalog.findInPriceRange(2600.0, 3000.0).length);
+    }
+
+    @Test
+    public void testGetPage() {
+        assertArrayEquals(new Product[]{laptop, phone}, catalog.getPage(0, 2));
+        assertArrayEquals(new Product[]{mouse}, catalog.getPage(2, 2));
+        assertEquals(0, catalog.getPage(3, 2).length);
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        Product cable = new Product("C001", "Cable", 80.0);
+        catalog.add(cable);
+
+        assertEquals(6, catalog.getSize());
+        // Same price as the mouse, so ordered by name
+        assertArrayEquals(new Product[]{cable, mouse}, catalog.findInPriceRange(80.0, 80.0));
+        assertArrayEquals(new Product[]{cable}, catalog.findByName("Cable"));
+
+        assertTrue(catalog.remove(mouse));
+        assertFalse(catalog.remove(mouse));
+        assertEquals(cable, catalog.findCheapest());
+        assertEquals(0, catalog.findByName("Mouse").length);
+    }
+}
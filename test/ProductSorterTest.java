@@ -0,0 +1,83 @@
+package test;
+
+import main.CartLine;
+import main.ComparatorProductSorter;
+import main.Product;
+import main.ProductSorter;
+import main.RadixProductSorter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSorterTest {
+    private final ProductSorter radixSorter = new RadixProductSorter();
+    private final ProductSorter comparatorSorter = new ComparatorProductSorter();
+
+    private CartLine[] randomLines(int count) {
+        Random random = new Random(42);
+        CartLine[] lines = new CartLine[count];
+        for (int i = 0; i < count; i++) {
+            // Few distinct prices and names, so there are plenty of ties
+            double price = random.nextInt(20) * 10.0 - 20.0;
+            String name = "Product" + random.nextInt(30);
+            lines[i] = new CartLine(new Product("C" + i, name, price), 1);
+        }
+        return lines;
+    }
+
+    private void assertSameOrder(CartLine[] lines, Comparator<Product> comparator) {
+        CartLine[] expected = lines.clone();
+        CartLine[] actual = lines.clone();
+        comparatorSorter.sort(expected, expected.length, comparator);
+        radixSorter.sort(actual, actual.length, comparator);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testNaturalOrderingMatchesArraysSort() {
+        assertSameOrder(randomLines(1000), null);
+    }
+
+    @Test
+    public void testPriceComparatorsMatchArraysSort() {
+        CartLine[] lines = randomLines(1000);
+
+        for (Comparator<Product> comparator : List.of(
+                new Product.PriceThenNameComparator(), new Product.PriceComparator(), Comparator.<Product>naturalOrder())) {
+            assertSameOrder(lines, comparator);
+        }
+    }
+
+    @Test
+    public void testReusedSorterMatchesArraysSort() {
+        // The radix sorter keeps its buffers, so sort a large cart, then smaller ones with the same sorter
+        assertSameOrder(randomLines(2000), null);
+        assertSameOrder(randomLines(300), new Product.PriceComparator());
+        assertSameOrder(randomLines(1000), null);
+    }
+
+    @Test
+    public void testOtherComparatorsFallBack() {
+        CartLine[] lines = randomLines(1000);
+
+        assertSameOrder(lines, new Product.NameComparator());
+        assertSameOrder(lines, Comparator.comparing(Product::getCode));
+    }
+
+    @Test
+    public void testSortsOnlyFirstSizeLines() {
+        CartLine[] lines = randomLines(1000);
+        CartLine last = lines[999];
+
+        radixSorter.sort(lines, 999, null);
+
+        assertSame(last, lines[999]);
+        for (int i = 1; i < 999; i++) {
+            assertTrue(lines[i - 1].getProduct().compareTo(lines[i].getProduct()) <= 0);
+        }
+    }
+}